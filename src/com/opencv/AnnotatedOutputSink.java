@@ -0,0 +1,225 @@
+package com.opencv;
+
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.videoio.VideoWriter;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists annotated output without slowing down detection. Frames are copied
+ * and queued; a dedicated encoder thread draws the annotations on the copy and
+ * writes them to an MJPEG video plus per-event JPEG snapshots.
+ *
+ * Frames arrive at the detection rate, which is lower and less regular than the
+ * video's frame rate. Each frame is therefore placed in the video slot given by
+ * its capture time, and the previous frame is repeated over any gap, so the
+ * video plays back in real time.
+ *
+ * Video frames and snapshots have separate bounded queues, so a backlog of
+ * video frames never crowds out the event snapshots kept as audit evidence.
+ * When the encoder falls behind, new entries are dropped (and counted per
+ * queue) rather than blocking the detection loop. The encoder writes pending
+ * snapshots first, then drains the queued video frames as one batch. A write
+ * that fails is logged and counted without stopping the encoder.
+ *
+ * All files of one sink share a run prefix (its start time), and snapshot names
+ * include the frame sequence number, so runs recording into the same directory
+ * do not overwrite each other.
+ */
+public class AnnotatedOutputSink {
+	private static final int QUEUE_CAPACITY = 64; // Video frames buffered before the sink starts dropping
+	private static final int SNAPSHOT_QUEUE_CAPACITY = 32; // Snapshots buffered before the sink starts dropping
+	private static final int MAX_BATCH = 16; // Maximum video frames written per encoder wake-up
+	private static final long POLL_MS = 50; // How often an idle encoder checks for snapshots and close()
+	private static final long CLOSE_TIMEOUT_MS = 10000; // Longest close() waits for the encoder to finish
+	private static final long MAX_GAP_SECONDS = 10; // Longest stall filled with repeated frames in the video
+
+	private final File directory;
+	private final double fps;
+	private final LatencyTracer tracer;
+	private final String runPrefix = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+	private final BlockingQueue<Job> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+	private final BlockingQueue<Job> snapshotQueue = new ArrayBlockingQueue<>(SNAPSHOT_QUEUE_CAPACITY);
+	private final Thread encoder;
+	private volatile boolean closing;
+	private VideoWriter videoWriter;
+	private boolean videoFailed;
+	private final Mat lastVideoFrame = new Mat();
+	private long videoStartNanos;
+	private long nextVideoSlot;
+	private volatile long droppedFrames;
+	private volatile long droppedSnapshots;
+	private volatile long failedWrites;
+
+	public AnnotatedOutputSink(String directory, double fps, LatencyTracer tracer) {
+		this.directory = new File(directory);
+		this.directory.mkdirs();
+		this.fps = fps;
+		this.tracer = tracer;
+		this.encoder = new Thread(this::encodeLoop, "annotated-output-encoder");
+		this.encoder.setDaemon(true);
+		this.encoder.start();
+	}
+
+	/** Queues a copy of the frame to be annotated and appended to the video. */
+	public void writeFrame(Mat frame, FrameStamp stamp, List<FaceAnnotation> annotations) {
+		if (!enqueue(queue, frame, stamp, annotations, null)) {
+			droppedFrames++;
+		}
+	}
+
+	/**
+	 * Queues a copy of the frame to be annotated and saved as
+	 * {@code <run>-frame<sequence>-<name>.jpg}.
+	 */
+	public void writeSnapshot(Mat frame, FrameStamp stamp, List<FaceAnnotation> annotations, String name) {
+		if (!enqueue(snapshotQueue, frame, stamp, annotations, name)) {
+			droppedSnapshots++;
+		}
+	}
+
+	public long getDroppedFrames() {
+		return droppedFrames;
+	}
+
+	public long getDroppedSnapshots() {
+		return droppedSnapshots;
+	}
+
+	/** Frames and snapshots the encoder failed to write. */
+	public long getFailedWrites() {
+		return failedWrites;
+	}
+
+	/**
+	 * Writes everything already queued, then stops the encoder thread. Gives up
+	 * after {@value #CLOSE_TIMEOUT_MS} ms rather than hanging shutdown.
+	 */
+	public void close() throws InterruptedException {
+		closing = true;
+		encoder.join(CLOSE_TIMEOUT_MS);
+		if (encoder.isAlive()) {
+			System.err.println("Annotated output encoder did not finish within " + CLOSE_TIMEOUT_MS + " ms");
+		}
+	}
+
+	private boolean enqueue(BlockingQueue<Job> target, Mat frame, FrameStamp stamp,
+			List<FaceAnnotation> annotations, String snapshotName) {
+		if (!encoder.isAlive() || target.remainingCapacity() == 0) {
+			return false;
+		}
+		Job job = new Job(frame.clone(), stamp, new ArrayList<>(annotations), snapshotName);
+		if (!target.offer(job)) {
+			job.frame.release();
+			return false;
+		}
+		return true;
+	}
+
+	private void encodeLoop() {
+		List<Job> batch = new ArrayList<>(MAX_BATCH);
+		try {
+			// Once closing, keep going until both queues are empty
+			while (!closing || !queue.isEmpty() || !snapshotQueue.isEmpty()) {
+				snapshotQueue.drainTo(batch);
+				Job frame = queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+				if (frame != null) {
+					batch.add(frame);
+					queue.drainTo(batch, MAX_BATCH - 1);
+				}
+				for (Job job : batch) {
+					encode(job);
+				}
+				batch.clear();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			if (videoWriter != null) {
+				videoWriter.release();
+			}
+			lastVideoFrame.release();
+		}
+	}
+
+	private void encode(Job job) {
+		// Time spent in the queue shows up as the wait before this span
+		long start = System.nanoTime();
+		try {
+			FaceAnnotation.drawAll(job.frame, job.annotations);
+			if (job.snapshotName == null) {
+				writeVideoFrame(job.frame, job.stamp);
+			} else {
+				String fileName = new File(directory,
+						runPrefix + "-frame" + job.stamp.getSequence() + "-" + job.snapshotName + ".jpg").getPath();
+				if (!Imgcodecs.imwrite(fileName, job.frame)) {
+					failedWrites++;
+					System.err.println("Failed to write snapshot " + fileName);
+				}
+			}
+		} catch (RuntimeException e) {
+			// One bad frame must not take the encoder thread down with it
+			failedWrites++;
+			System.err.println("Failed to write annotated frame " + job.stamp.getSequence() + ": " + e);
+		} finally {
+			job.frame.release();
+		}
+		tracer.span(job.snapshotName == null ? "encoder.video" : "encoder.snapshot", job.stamp, start,
+				System.nanoTime());
+	}
+
+	private void writeVideoFrame(Mat frame, FrameStamp stamp) {
+		if (videoFailed) {
+			failedWrites++;
+			return;
+		}
+		if (videoWriter == null) {
+			String fileName = new File(directory, "annotated-" + runPrefix + ".avi").getPath();
+			videoWriter = new VideoWriter(fileName, VideoWriter.fourcc('M', 'J', 'P', 'G'), fps, frame.size());
+			if (!videoWriter.isOpened()) {
+				// Reported once; snapshots keep being written
+				videoFailed = true;
+				failedWrites++;
+				System.err.println("Failed to open " + fileName + " for writing; annotated video disabled");
+				return;
+			}
+			videoStartNanos = stamp.getCaptureNanos();
+		}
+
+		long slot = Math.round((stamp.getCaptureNanos() - videoStartNanos) * fps / 1e9);
+		if (slot < nextVideoSlot) {
+			// A newer frame for a slot already written; show it from the next slot on
+			frame.copyTo(lastVideoFrame);
+			return;
+		}
+		long repeats = Math.min(slot - nextVideoSlot, (long) (MAX_GAP_SECONDS * fps));
+		for (long i = 0; i < repeats && !lastVideoFrame.empty(); i++) {
+			videoWriter.write(lastVideoFrame);
+		}
+		videoWriter.write(frame);
+		frame.copyTo(lastVideoFrame);
+		nextVideoSlot = slot + 1;
+	}
+
+	private static class Job {
+		final Mat frame;
+		final FrameStamp stamp;
+		final List<FaceAnnotation> annotations;
+		final String snapshotName;
+
+		Job(Mat frame, FrameStamp stamp, List<FaceAnnotation> annotations, String snapshotName) {
+			this.frame = frame;
+			this.stamp = stamp;
+			this.annotations = annotations;
+			this.snapshotName = snapshotName;
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.opencv;
+
+/**
+ * Camera properties requested when a capture is opened. Drivers are free to
+ * ignore or adjust any of them, so the values actually in effect have to be
+ * read back after opening.
+ */
+public class CaptureSettings {
+	private final int width;
+	private final int height;
+	private final double fps;
+	private final String fourcc;
+	private final int bufferSize;
+
+	/**
+	 * @param fourcc     four-character pixel format code such as {@code MJPG}, or
+	 *                   null to keep the driver default
+	 * @param bufferSize frames the driver may queue; 1 keeps only the newest
+	 */
+	public CaptureSettings(int width, int height, double fps, String fourcc, int bufferSize) {
+		if (fourcc != null && fourcc.length() != 4) {
+			throw new IllegalArgumentException("FOURCC must be four characters: " + fourcc);
+		}
+		this.width = width;
+		this.height = height;
+		this.fps = fps;
+		this.fourcc = fourcc;
+		this.bufferSize = bufferSize;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public double getFps() {
+		return fps;
+	}
+
+	public String getFourcc() {
+		return fourcc;
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+}
@@ -0,0 +1,66 @@
+package com.opencv;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Accumulates the time spent in each liveness cue so its per-frame cost can be
+ * reported and compared across runs.
+ */
+public class CueCosts {
+	private final Map<String, long[]> totals = new LinkedHashMap<>(); // name -> {nanos, updates}
+
+	public synchronized void record(String cueName, long nanos) {
+		long[] total = totals.get(cueName);
+		if (total == null) {
+			total = new long[2];
+			totals.put(cueName, total);
+		}
+		total[0] += nanos;
+		total[1]++;
+	}
+
+	public synchronized void addAll(CueCosts other) {
+		for (Map.Entry<String, long[]> entry : other.snapshot().entrySet()) {
+			long[] total = totals.get(entry.getKey());
+			if (total == null) {
+				totals.put(entry.getKey(), entry.getValue());
+			} else {
+				total[0] += entry.getValue()[0];
+				total[1] += entry.getValue()[1];
+			}
+		}
+	}
+
+	/** Forgets everything recorded so far, e.g. the costs of warm-up frames. */
+	public synchronized void reset() {
+		totals.clear();
+	}
+
+	/** Average cost per update in microseconds, keyed by cue name. */
+	public synchronized Map<String, Double> averageMicros() {
+		Map<String, Double> averages = new LinkedHashMap<>();
+		for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+			long[] total = entry.getValue();
+			averages.put(entry.getKey(), total[1] == 0 ? 0 : total[0] / 1000.0 / total[1]);
+		}
+		return averages;
+	}
+
+	private synchronized Map<String, long[]> snapshot() {
+		Map<String, long[]> copy = new LinkedHashMap<>();
+		for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+			copy.put(entry.getKey(), entry.getValue().clone());
+		}
+		return copy;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		for (Map.Entry<String, Double> entry : averageMicros().entrySet()) {
+			report.append(String.format("Cue cost %s: %.1f us/frame%n", entry.getKey(), entry.getValue()));
+		}
+		return report.toString();
+	}
+}
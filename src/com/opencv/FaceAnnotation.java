@@ -0,0 +1,52 @@
+package com.opencv;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What to draw for one face: its rectangle, its eyes (in frame coordinates)
+ * and a status label. Annotations are collected during detection and drawn
+ * later on a copy of the frame, so the detection frame itself is never
+ * modified.
+ */
+public class FaceAnnotation {
+	private static final Scalar FACE_COLOR = new Scalar(0, 0, 255);
+	private static final Scalar EYE_COLOR = new Scalar(0, 255, 0);
+
+	private final Rect face;
+	private final List<Rect> eyes = new ArrayList<>();
+	private final String label;
+
+	public FaceAnnotation(Rect face, String label) {
+		this.face = face;
+		this.label = label;
+	}
+
+	/** Adds an eye given relative to the face rectangle. */
+	public void addEye(Rect eyeRect) {
+		eyes.add(new Rect(face.x + eyeRect.x, face.y + eyeRect.y, eyeRect.width, eyeRect.height));
+	}
+
+	public void draw(Mat image) {
+		Imgproc.rectangle(image, face.tl(), face.br(), FACE_COLOR, 2);
+		for (Rect eye : eyes) {
+			Imgproc.rectangle(image, eye.tl(), eye.br(), EYE_COLOR, 2);
+		}
+		if (label != null) {
+			Imgproc.putText(image, label, new Point(face.x, Math.max(face.y - 6, 12)), Imgproc.FONT_HERSHEY_SIMPLEX,
+					0.5, FACE_COLOR, 1);
+		}
+	}
+
+	public static void drawAll(Mat image, List<FaceAnnotation> annotations) {
+		for (FaceAnnotation annotation : annotations) {
+			annotation.draw(image);
+		}
+	}
+}
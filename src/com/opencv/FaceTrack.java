@@ -0,0 +1,87 @@
+package com.opencv;
+
+import org.opencv.core.Rect;
+
+import java.time.Instant;
+
+/**
+ * State kept for one face while it stays in view: where it was last seen, its
+ * eye-blink state, its liveness cues and its session verdict.
+ */
+public class FaceTrack {
+	private final int id;
+	private final LivenessCuePipeline cues;
+	private final Instant firstSeen;
+	private Rect rect;
+	private Instant lastSeen;
+	private Instant lastBlinkTime;
+	private boolean blinkLive;
+	private LivenessVerdict verdict = LivenessVerdict.PENDING;
+	private int evaluatedFrames;
+
+	FaceTrack(int id, Rect rect, Instant now, LivenessCuePipeline cues) {
+		this.id = id;
+		this.rect = rect;
+		this.firstSeen = now;
+		this.lastSeen = now;
+		this.lastBlinkTime = now;
+		this.cues = cues;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public Rect getRect() {
+		return rect;
+	}
+
+	public Instant getFirstSeen() {
+		return firstSeen;
+	}
+
+	public Instant getLastSeen() {
+		return lastSeen;
+	}
+
+	public LivenessCuePipeline getCues() {
+		return cues;
+	}
+
+	public Instant getLastBlinkTime() {
+		return lastBlinkTime;
+	}
+
+	public void setLastBlinkTime(Instant lastBlinkTime) {
+		this.lastBlinkTime = lastBlinkTime;
+	}
+
+	public boolean isBlinkLive() {
+		return blinkLive;
+	}
+
+	public void setBlinkLive(boolean blinkLive) {
+		this.blinkLive = blinkLive;
+	}
+
+	public LivenessVerdict getVerdict() {
+		return verdict;
+	}
+
+	public void setVerdict(LivenessVerdict verdict) {
+		this.verdict = verdict;
+	}
+
+	public int getEvaluatedFrames() {
+		return evaluatedFrames;
+	}
+
+	int countEvaluatedFrame() {
+		return ++evaluatedFrames;
+	}
+
+	void seen(Rect rect, Instant now) {
+		this.rect = rect;
+		this.lastSeen = now;
+	}
+}
@@ -0,0 +1,96 @@
+package com.opencv;
+
+import org.opencv.core.Rect;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Associates the faces detected in each frame with the faces seen in earlier
+ * frames, so per-face state such as liveness cues survives from frame to frame.
+ *
+ * Faces are matched greedily by rectangle overlap; a track is dropped once its
+ * face has not been seen for the timeout.
+ */
+public class FaceTracker {
+	private static final double MIN_OVERLAP = 0.3; // Minimum intersection-over-union to continue a track
+
+	private final List<FaceTrack> tracks = new ArrayList<>();
+	private final long timeoutMs;
+	private final CueCosts cueCosts;
+	private int nextId = 1;
+
+	public FaceTracker(long timeoutMs, CueCosts cueCosts) {
+		this.timeoutMs = timeoutMs;
+		this.cueCosts = cueCosts;
+	}
+
+	/**
+	 * Returns one track per detected face, in the same order as {@code faces}.
+	 * New tracks are started for faces that do not overlap an existing one.
+	 */
+	public List<FaceTrack> update(Rect[] faces, Instant now) {
+		expire(now);
+
+		List<FaceTrack> unmatched = new ArrayList<>(tracks);
+		List<FaceTrack> matched = new ArrayList<>(faces.length);
+		for (Rect face : faces) {
+			FaceTrack best = null;
+			double bestOverlap = MIN_OVERLAP;
+			for (FaceTrack track : unmatched) {
+				double overlap = intersectionOverUnion(face, track.getRect());
+				if (overlap >= bestOverlap) {
+					best = track;
+					bestOverlap = overlap;
+				}
+			}
+			if (best == null) {
+				best = new FaceTrack(nextId++, face, now, LivenessCuePipeline.createDefault(cueCosts));
+				tracks.add(best);
+			} else {
+				unmatched.remove(best);
+				best.seen(face, now);
+			}
+			matched.add(best);
+		}
+		return matched;
+	}
+
+	public List<FaceTrack> getTracks() {
+		return tracks;
+	}
+
+	/** Drops all tracks and frees their cue buffers. */
+	public void release() {
+		for (FaceTrack track : tracks) {
+			track.getCues().release();
+		}
+		tracks.clear();
+	}
+
+	private void expire(Instant now) {
+		Iterator<FaceTrack> iterator = tracks.iterator();
+		while (iterator.hasNext()) {
+			FaceTrack track = iterator.next();
+			if (Duration.between(track.getLastSeen(), now).toMillis() > timeoutMs) {
+				track.getCues().release();
+				iterator.remove();
+			}
+		}
+	}
+
+	private static double intersectionOverUnion(Rect a, Rect b) {
+		int left = Math.max(a.x, b.x);
+		int top = Math.max(a.y, b.y);
+		int right = Math.min(a.x + a.width, b.x + b.width);
+		int bottom = Math.min(a.y + a.height, b.y + b.height);
+		if (right <= left || bottom <= top) {
+			return 0;
+		}
+		double intersection = (double) (right - left) * (bottom - top);
+		return intersection / (a.area() + b.area() - intersection);
+	}
+}
@@ -0,0 +1,153 @@
+package com.opencv;
+
+import org.opencv.core.Mat;
+
+/**
+ * Pulls the freshest available frame from a {@link FrameSource} and stamps it.
+ *
+ * For live sources, frames that queued up in the driver while the previous
+ * frame was being processed are grabbed and discarded without being decoded,
+ * and only the newest one is retrieved. A grab that blocks instead of returning
+ * a queued frame at once means the queue is empty, so draining stops there and
+ * the frame it returned is used. Failed or empty reads never reach the
+ * caller; after repeated failures a live source is released and re-opened with
+ * exponential backoff, while a recorded source is treated as finished.
+ */
+public class FrameGrabber {
+	private static final int MAX_CONSECUTIVE_FAILURES = 10; // Failed reads before reconnecting a live source
+	private static final long MIN_RECONNECT_DELAY_MS = 250; // First delay before re-opening a live source
+	private static final long MAX_RECONNECT_DELAY_MS = 8000; // Upper bound for the reconnect backoff
+	private static final int DEFAULT_DRIVER_BUFFER = 4; // Frames assumed queued when the driver does not say
+	private static final double BLOCKING_GRAB_FRACTION = 0.25; // Grab time, in frame intervals, that means it waited
+
+	private final FrameSource source;
+	private final int driverBuffer;
+	private final LatencyTracer tracer;
+	private long lastFrameNanos;
+	private long sequence;
+	private int consecutiveFailures;
+	private long reconnectDelayMs = MIN_RECONNECT_DELAY_MS;
+	private long droppedStaleFrames;
+	private long reconnects;
+	private boolean finished;
+
+	/**
+	 * @param source       an already opened source
+	 * @param driverBuffer frames the source may have queued, or 0 if unknown
+	 */
+	public FrameGrabber(FrameSource source, int driverBuffer, LatencyTracer tracer) {
+		this.source = source;
+		this.driverBuffer = driverBuffer > 0 ? driverBuffer : DEFAULT_DRIVER_BUFFER;
+		this.tracer = tracer;
+	}
+
+	/**
+	 * Reads the next frame to process into {@code frame}. Returns its stamp, or
+	 * null if no usable frame was read this time; {@link #isFinished()} tells
+	 * whether more frames can be expected.
+	 */
+	public FrameStamp next(Mat frame) throws InterruptedException {
+		if (finished) {
+			return null;
+		}
+		if (!source.isOpened() && !reconnect()) {
+			return null;
+		}
+
+		long grabStart = System.nanoTime();
+		long queued = estimateQueuedFrames(grabStart);
+		if (!source.grab()) {
+			return failed();
+		}
+		if (queued > 1 && !grabBlocked(grabStart)) {
+			// The grab returned a queued frame at once; move on to the newest queued one
+			for (long i = 1; i < queued; i++) {
+				long drainStart = System.nanoTime();
+				if (!source.grab()) {
+					return failed();
+				}
+				droppedStaleFrames++;
+				if (grabBlocked(drainStart)) {
+					break;
+				}
+			}
+		}
+		FrameStamp stamp = new FrameStamp(sequence++, System.nanoTime());
+		tracer.span("capture.grab", stamp, grabStart, stamp.getCaptureNanos());
+
+		long retrieveStart = System.nanoTime();
+		if (!source.retrieve(frame) || frame.empty()) {
+			return failed();
+		}
+		tracer.span("capture.retrieve", stamp, retrieveStart, System.nanoTime());
+
+		consecutiveFailures = 0;
+		reconnectDelayMs = MIN_RECONNECT_DELAY_MS;
+		lastFrameNanos = stamp.getCaptureNanos();
+		return stamp;
+	}
+
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/** Frames grabbed but skipped because a newer one was already queued. */
+	public long getDroppedStaleFrames() {
+		return droppedStaleFrames;
+	}
+
+	public long getReconnects() {
+		return reconnects;
+	}
+
+	/**
+	 * Frames keep arriving at the source's frame rate while the previous one is
+	 * processed. Estimates how many may have queued since then, capped at what
+	 * the driver can hold; 0 or 1 means there is nothing to drain.
+	 */
+	private long estimateQueuedFrames(long nowNanos) {
+		double fps = source.getFps();
+		if (!source.isLive() || fps <= 0 || lastFrameNanos == 0) {
+			return 0;
+		}
+		return Math.min((nowNanos - lastFrameNanos) / frameIntervalNanos(), driverBuffer);
+	}
+
+	/** Whether a grab started at {@code startNanos} had to wait for a new frame. */
+	private boolean grabBlocked(long startNanos) {
+		return System.nanoTime() - startNanos > BLOCKING_GRAB_FRACTION * frameIntervalNanos();
+	}
+
+	private long frameIntervalNanos() {
+		return (long) (1_000_000_000L / source.getFps());
+	}
+
+	private FrameStamp failed() throws InterruptedException {
+		consecutiveFailures++;
+		if (!source.isLive()) {
+			// A recorded source that stops producing frames has reached its end
+			finished = true;
+		} else if (consecutiveFailures >= MAX_CONSECUTIVE_FAILURES) {
+			source.release();
+			reconnect();
+		}
+		return null;
+	}
+
+	private boolean reconnect() throws InterruptedException {
+		if (!source.isLive()) {
+			finished = true;
+			return false;
+		}
+		System.out.println("Frame source lost, reconnecting in " + reconnectDelayMs + " ms");
+		Thread.sleep(reconnectDelayMs);
+		reconnectDelayMs = Math.min(reconnectDelayMs * 2, MAX_RECONNECT_DELAY_MS);
+		reconnects++;
+		if (!source.open()) {
+			return false;
+		}
+		consecutiveFailures = 0;
+		lastFrameNanos = 0;
+		return true;
+	}
+}
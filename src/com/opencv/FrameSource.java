@@ -0,0 +1,33 @@
+package com.opencv;
+
+import org.opencv.core.Mat;
+
+/**
+ * Where frames come from: a camera, a video file or a synthetic generator.
+ *
+ * Mirrors the {@code grab()}/{@code retrieve()} split of
+ * {@link org.opencv.videoio.VideoCapture}: grabbing advances to the next frame
+ * cheaply, and only frames that will be processed are retrieved (decoded).
+ */
+public interface FrameSource {
+	/** Opens (or re-opens) the source; returns whether it is ready to grab. */
+	boolean open();
+
+	boolean isOpened();
+
+	/**
+	 * Live sources keep producing frames whether or not they are read, so stale
+	 * frames can be skipped and failures are worth reconnecting for. Recorded
+	 * sources end when they run out of frames.
+	 */
+	boolean isLive();
+
+	/** Nominal frame rate, or 0 if the source does not report one. */
+	double getFps();
+
+	boolean grab();
+
+	boolean retrieve(Mat frame);
+
+	void release();
+}
@@ -0,0 +1,47 @@
+package com.opencv;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Identity and capture time of one frame, carried through every processing
+ * stage so latency can be measured against the moment the frame was captured.
+ *
+ * The capture time comes from {@link System#nanoTime()}, so it is monotonic and
+ * only meaningful relative to other stamps from the same JVM.
+ *
+ * The stamp also remembers when the frame's latest traced stage finished, so
+ * the wait before each stage can be told apart from the work done in earlier
+ * stages.
+ */
+public final class FrameStamp {
+	private final long sequence;
+	private final long captureNanos;
+	private final AtomicLong lastStageEndNanos;
+
+	public FrameStamp(long sequence, long captureNanos) {
+		this.sequence = sequence;
+		this.captureNanos = captureNanos;
+		this.lastStageEndNanos = new AtomicLong(captureNanos);
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public long getCaptureNanos() {
+		return captureNanos;
+	}
+
+	/** Time elapsed since capture, in nanoseconds. */
+	public long ageNanos(long nowNanos) {
+		return nowNanos - captureNanos;
+	}
+
+	/**
+	 * Records that a stage of this frame finished at {@code endNanos} and returns
+	 * when the previous stage finished (the capture time for the first stage).
+	 */
+	long finishStage(long endNanos) {
+		return lastStageEndNanos.getAndAccumulate(endNanos, Math::max);
+	}
+}
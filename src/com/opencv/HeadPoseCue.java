@@ -0,0 +1,63 @@
+package com.opencv;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+/**
+ * Head-pose change cue. A real head drifts, nods and turns slightly while the
+ * person waits; a photo on a stand or a screen on a tripod does not.
+ *
+ * Pose change is approximated from the face rectangle alone: the frame-to-frame
+ * shift of its centre (relative to its width) and the change in its scale.
+ */
+public class HeadPoseCue implements LivenessCue {
+	private static final int WINDOW_FRAMES = 30; // Roughly one second of frames at 30 fps
+	private static final double LIVE_POSE_STDDEV = 0.02; // Relative pose change at which the score saturates
+
+	private final SlidingWindowStats horizontalShift = new SlidingWindowStats(WINDOW_FRAMES);
+	private final SlidingWindowStats verticalShift = new SlidingWindowStats(WINDOW_FRAMES);
+	private final SlidingWindowStats scaleChange = new SlidingWindowStats(WINDOW_FRAMES);
+	private Rect previousRect;
+
+	@Override
+	public String name() {
+		return "headPose";
+	}
+
+	@Override
+	public void update(Mat facePatch, Mat grayFace, Rect faceRect) {
+		if (previousRect != null) {
+			double width = previousRect.width;
+			horizontalShift.add(((faceRect.x + faceRect.width / 2.0) - (previousRect.x + width / 2.0)) / width);
+			verticalShift.add(((faceRect.y + faceRect.height / 2.0) - (previousRect.y + previousRect.height / 2.0))
+					/ width);
+			scaleChange.add(Math.log((double) faceRect.width / width));
+		}
+		previousRect = faceRect.clone();
+	}
+
+	@Override
+	public boolean isReady() {
+		return scaleChange.isFull();
+	}
+
+	@Override
+	public double score() {
+		double spread = horizontalShift.standardDeviation() + verticalShift.standardDeviation()
+				+ scaleChange.standardDeviation();
+		return Math.min(1, spread / LIVE_POSE_STDDEV);
+	}
+
+	@Override
+	public void reset() {
+		horizontalShift.clear();
+		verticalShift.clear();
+		scaleChange.clear();
+		previousRect = null;
+	}
+
+	@Override
+	public void release() {
+		reset();
+	}
+}
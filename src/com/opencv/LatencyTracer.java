@@ -0,0 +1,135 @@
+package com.opencv;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records per-frame stage timings and writes them as a Chrome trace (open the
+ * file in chrome://tracing or https://ui.perfetto.dev).
+ *
+ * Every stage span carries the frame sequence number, how long the frame
+ * waited between the end of its previous stage and the start of this one
+ * ({@code queuedUs}), and its age when the stage started
+ * ({@code sinceCaptureUs}). The span duration is the processing time, so
+ * queueing and processing can be told apart per stage. Summary spans such as
+ * capture-to-verdict cover several stages and do not affect the wait of the
+ * stages around them. Recording is lock-free and can be called from any thread;
+ * once {@code maxEvents} spans have been recorded, further spans are counted but
+ * not kept.
+ */
+public class LatencyTracer {
+	/** A tracer that records nothing, for when tracing is not enabled. */
+	public static final LatencyTracer DISABLED = new LatencyTracer(0);
+
+	private final int maxEvents;
+	private final long originNanos = System.nanoTime();
+	private final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+	private final AtomicLong recorded = new AtomicLong(); // Spans offered, kept or not; long so it cannot wrap
+	private final Map<Long, String> threadNames = new ConcurrentHashMap<>();
+
+	public LatencyTracer(int maxEvents) {
+		this.maxEvents = maxEvents;
+	}
+
+	public boolean isEnabled() {
+		return maxEvents > 0;
+	}
+
+	/**
+	 * Records that {@code stage} processed {@code frame} from {@code startNanos}
+	 * to {@code endNanos} ({@link System#nanoTime()} values) on the current
+	 * thread. Stages of one frame are expected to be recorded in the order they
+	 * run.
+	 */
+	public void span(String stage, FrameStamp frame, long startNanos, long endNanos) {
+		if (!isEnabled()) {
+			return;
+		}
+		long previousStageEnd = frame.finishStage(endNanos);
+		record(stage, frame, startNanos, endNanos, Math.max(0, startNanos - previousStageEnd));
+	}
+
+	/**
+	 * Records a span that covers several stages, such as capture to verdict. It
+	 * has no wait of its own and is not treated as a stage of the frame.
+	 */
+	public void summary(String name, FrameStamp frame, long startNanos, long endNanos) {
+		if (!isEnabled()) {
+			return;
+		}
+		record(name, frame, startNanos, endNanos, 0);
+	}
+
+	/** Number of spans that did not fit in the trace. */
+	public long getDroppedSpans() {
+		return Math.max(0, recorded.get() - maxEvents);
+	}
+
+	public void write(String fileName) throws IOException {
+		try (Writer out = new FileWriter(fileName)) {
+			out.write("{\"traceEvents\":[\n");
+			boolean first = true;
+			for (Map.Entry<Long, String> thread : threadNames.entrySet()) {
+				first = separate(out, first);
+				out.write(String.format(Locale.ROOT,
+						"{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":%d,\"args\":{\"name\":\"%s\"}}",
+						thread.getKey(), thread.getValue().replace("\"", "'")));
+			}
+			for (Span span : spans) {
+				first = separate(out, first);
+				out.write(String.format(Locale.ROOT,
+						"{\"name\":\"%s\",\"ph\":\"X\",\"pid\":1,\"tid\":%d,\"ts\":%.1f,\"dur\":%.1f,"
+								+ "\"args\":{\"frame\":%d,\"queuedUs\":%.1f,\"sinceCaptureUs\":%.1f}}",
+						span.name, span.threadId, micros(span.startNanos - originNanos),
+						micros(span.endNanos - span.startNanos), span.frame.getSequence(), micros(span.waitNanos),
+						micros(span.frame.ageNanos(span.startNanos))));
+			}
+			out.write("\n]}\n");
+		}
+	}
+
+	private void record(String name, FrameStamp frame, long startNanos, long endNanos, long waitNanos) {
+		if (recorded.incrementAndGet() > maxEvents) {
+			return;
+		}
+		Thread thread = Thread.currentThread();
+		threadNames.putIfAbsent(thread.getId(), thread.getName());
+		spans.add(new Span(name, frame, startNanos, endNanos, waitNanos, thread.getId()));
+	}
+
+	private static boolean separate(Writer out, boolean first) throws IOException {
+		if (!first) {
+			out.write(",\n");
+		}
+		return false;
+	}
+
+	private static double micros(long nanos) {
+		return nanos / 1000.0;
+	}
+
+	private static class Span {
+		final String name;
+		final FrameStamp frame;
+		final long startNanos;
+		final long endNanos;
+		final long waitNanos;
+		final long threadId;
+
+		Span(String name, FrameStamp frame, long startNanos, long endNanos, long waitNanos, long threadId) {
+			this.name = name;
+			this.frame = frame;
+			this.startNanos = startNanos;
+			this.endNanos = endNanos;
+			this.waitNanos = waitNanos;
+			this.threadId = threadId;
+		}
+	}
+}
@@ -4,17 +4,17 @@ import org.opencv.core.Core;
 import org.opencv.core.Mat;
 import org.opencv.core.MatOfRect;
 import org.opencv.core.Rect;
-import org.opencv.core.Scalar;
 import org.opencv.core.Size;
 import org.opencv.imgproc.Imgproc;
 import org.opencv.objdetect.CascadeClassifier;
 import org.opencv.objdetect.Objdetect;
-import org.opencv.videoio.VideoCapture;
-import org.opencv.videoio.Videoio;
 import org.opencv.highgui.HighGui;
 
+import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 public class LiveFaceDetector {
 	private static final int EYE_BLINK_THRESHOLD = 3; // Number of consecutive eye blinks required for liveness
@@ -22,101 +22,316 @@ public class LiveFaceDetector {
 	private static final long BLINK_TIME_THRESHOLD_MS = 300; // Minimum time difference between eye blinks (in
 																// milliseconds)
 	private static final long FACE_TIMEOUT_MS = 2000; // Timeout period for face detection (in milliseconds)
+	private static final double LIVENESS_SCORE_THRESHOLD = 0.5; // Minimum fused cue score for a live face
+	static final int SESSION_MAX_FRAMES = 150; // Default frame budget per face in session mode
+	static final long SESSION_MAX_MS = 5000; // Default time budget per face in session mode (in milliseconds)
+	private static final double DEFAULT_RECORD_FPS = 30; // Video frame rate used when the camera does not report one
+	private static final int MAX_TRACE_SPANS = 1_000_000; // Spans kept in the latency trace before dropping
+	private static final int CAPTURE_WIDTH = 640; // Requested camera frame width
+	private static final int CAPTURE_HEIGHT = 480; // Requested camera frame height
+	private static final double CAPTURE_FPS = 30; // Requested camera frame rate
+	private static final String CAPTURE_FOURCC = "MJPG"; // Requested camera pixel format
+	private static final int CAPTURE_BUFFER_SIZE = 1; // Frames the camera driver may queue
 
-	public static void main(String[] args) {
-		System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+	private final CascadeClassifier faceCascade = new CascadeClassifier();
+	private final CascadeClassifier eyeCascade = new CascadeClassifier();
+	private final LivenessSession session;
+	private final LatencyTracer tracer;
+	// Per-face state (eye blinking and liveness cues) kept across frames
+	private final CueCosts cueCosts = new CueCosts();
+	private final FaceTracker faceTracker = new FaceTracker(FACE_TIMEOUT_MS, cueCosts);
+	private boolean reportStatus = true;
+
+	/**
+	 * @param session session budget, or null to report liveness on every frame
+	 */
+	public LiveFaceDetector(LivenessSession session, LatencyTracer tracer) {
+		this.session = session;
+		this.tracer = tracer;
 
 		// Load the trained haarcascade classifier XML files for face and eye detection
-		CascadeClassifier faceCascade = new CascadeClassifier();
 		faceCascade.load(
 				"data/raw.githubusercontent.com_opencv_opencv_master_data_haarcascades_haarcascade_frontalface_alt2.xml");
-
-		CascadeClassifier eyeCascade = new CascadeClassifier();
 		eyeCascade.load("data/raw.githubusercontent.com_anaustinbeing_haar-cascade-files_master_haarcascade_eye.xml");
+	}
+
+	public CueCosts getCueCosts() {
+		return cueCosts;
+	}
+
+	/**
+	 * Frees the per-face cue buffers. The cascades have no explicit release in
+	 * the Java API and are freed once the detector is garbage collected.
+	 */
+	public void release() {
+		faceTracker.release();
+	}
+
+	/** Whether liveness results are printed to standard output (on by default). */
+	public void setReportStatus(boolean reportStatus) {
+		this.reportStatus = reportStatus;
+	}
+
+	/**
+	 * Options:
+	 * <ul>
+	 * <li>{@code --session} stop verifying a face once it has a final verdict</li>
+	 * <li>{@code --max-frames N} frame budget per face in session mode</li>
+	 * <li>{@code --max-ms N} time budget per face in session mode (in
+	 * milliseconds)</li>
+	 * <li>{@code --record DIR} write annotated video and per-event snapshots to
+	 * DIR</li>
+	 * <li>{@code --trace FILE} write per-frame stage latencies to FILE as a Chrome
+	 * trace</li>
+	 * <li>{@code --camera N} camera index (default 0)</li>
+	 * <li>{@code --source FILE} read frames from a video file instead of a
+	 * camera</li>
+	 * <li>{@code --width N}, {@code --height N}, {@code --fps N},
+	 * {@code --fourcc CODE}, {@code --buffer N} requested camera settings</li>
+	 * </ul>
+	 */
+	public static void main(String[] args) throws InterruptedException, IOException {
+		System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+
+		// In session mode each face gets a single verdict instead of a per-frame status
+		LivenessSession session = null;
+		if (hasOption(args, "--session")) {
+			session = new LivenessSession((int) longOption(args, "--max-frames", SESSION_MAX_FRAMES),
+					longOption(args, "--max-ms", SESSION_MAX_MS));
+		}
 
-		// Create a VideoCapture object to capture frames from the camera
-		VideoCapture videoCapture = new VideoCapture(0); // 0 represents the default camera
+		// Optionally trace how long each frame spends in every stage
+		String traceFile = stringOption(args, "--trace", null);
+		LatencyTracer tracer = traceFile != null ? new LatencyTracer(MAX_TRACE_SPANS) : LatencyTracer.DISABLED;
 
-		if (!videoCapture.isOpened()) {
+		LiveFaceDetector detector = new LiveFaceDetector(session, tracer);
+
+		// Open the camera (0 represents the default camera) or a recorded video
+		String sourceFile = stringOption(args, "--source", null);
+		VideoCaptureFrameSource frameSource;
+		if (sourceFile != null) {
+			frameSource = new VideoCaptureFrameSource(sourceFile);
+		} else {
+			CaptureSettings captureSettings = new CaptureSettings((int) longOption(args, "--width", CAPTURE_WIDTH),
+					(int) longOption(args, "--height", CAPTURE_HEIGHT), doubleOption(args, "--fps", CAPTURE_FPS),
+					stringOption(args, "--fourcc", CAPTURE_FOURCC),
+					(int) longOption(args, "--buffer", CAPTURE_BUFFER_SIZE));
+			frameSource = new VideoCaptureFrameSource((int) longOption(args, "--camera", 0), captureSettings);
+		}
+
+		if (!frameSource.open()) {
 			System.out.println("Failed to open the camera.");
 			return;
 		}
-
-		// Set camera frame properties
-		videoCapture.set(Videoio.CAP_PROP_FRAME_WIDTH, 640);
-		videoCapture.set(Videoio.CAP_PROP_FRAME_HEIGHT, 480);
+		FrameGrabber frameGrabber = new FrameGrabber(frameSource, frameSource.getBufferSize(), tracer);
 
 		// Create a window to display the camera feed
 		HighGui.namedWindow("Live Face Detection");
 
-		// Variables for eye blinking detection
-		Instant lastBlinkTime = Instant.now();
-		boolean isLive = false;
+		// Optionally persist the annotated output on a background encoder thread
+		AnnotatedOutputSink outputSink = null;
+		String recordDirectory = stringOption(args, "--record", null);
+		if (recordDirectory != null) {
+			double fps = frameSource.getFps();
+			outputSink = new AnnotatedOutputSink(recordDirectory, fps > 0 ? fps : DEFAULT_RECORD_FPS, tracer);
+		}
 
-		// Continuously read frames from the camera feed
+		// Continuously read frames from the camera feed; annotations are drawn on a separate
+		// display copy so the captured frame stays untouched
 		Mat frame = new Mat();
+		Mat display = new Mat();
+		List<FaceAnnotation> annotations = new ArrayList<>();
+		List<String> snapshotEvents = new ArrayList<>();
 		while (true) {
-			// Read a frame from the camera
-			videoCapture.read(frame);
-
-			// Perform face detection on the frame
-			MatOfRect faces = new MatOfRect();
-			detectFaces(frame, faceCascade, faces);
-
-			// Check if any faces are detected
-			if (faces.toArray().length >= 1) {
-				Rect faceRect = faces.toArray()[0];
-
-				// Extract the region of interest (ROI) containing the face
-				Mat faceROI = frame.submat(faceRect);
-
-				// Detect eyes in the face ROI
-				MatOfRect eyes = new MatOfRect();
-				detectEyes(faceROI, eyeCascade, eyes);
-
-				// Check if eyes are detected and determine if the person is live based on eye
-				// blinking
-				if (eyes.toArray().length >= 1) {
-					Instant currentBlinkTime = Instant.now();
-					Duration timeDifference = Duration.between(lastBlinkTime, currentBlinkTime);
-					if (timeDifference.toMillis() <= BLINK_TIME_THRESHOLD_MS) {
-						isLive = true;
-						lastBlinkTime = currentBlinkTime;
-					}
-				} else {
-					isLive = false;
+			// Read the freshest frame from the camera, stamped with its capture time; failed reads
+			// are skipped (and a lost camera reconnected) so only real frames reach detection
+			FrameStamp stamp = frameGrabber.next(frame);
+			if (stamp == null) {
+				if (frameGrabber.isFinished() || HighGui.waitKey(1) == 27)
+					break;
+				continue;
+			}
+
+			// Run detection and liveness checks on the frame
+			annotations.clear();
+			snapshotEvents.clear();
+			detector.processFrame(frame, stamp, annotations, snapshotEvents);
+
+			// Display the frame with detected faces and eyes in the window
+			long stageStart = System.nanoTime();
+			frame.copyTo(display);
+			FaceAnnotation.drawAll(display, annotations);
+			HighGui.imshow("Live Face Detection", display);
+			tracer.span("display", stamp, stageStart, System.nanoTime());
+
+			// Hand the frame to the encoder thread; it draws its own annotated copy
+			if (outputSink != null) {
+				stageStart = System.nanoTime();
+				outputSink.writeFrame(frame, stamp, annotations);
+				for (String event : snapshotEvents) {
+					outputSink.writeSnapshot(frame, stamp, annotations, event);
 				}
+				tracer.span("output.enqueue", stamp, stageStart, System.nanoTime());
+			}
+			tracer.summary("frame", stamp, stamp.getCaptureNanos(), System.nanoTime());
+
+			// Exit the loop if the 'Esc' key is pressed
+			if (HighGui.waitKey(1) == 27)
+				break;
+		}
+
+		// Report how much time each liveness cue costs per frame
+		System.out.print(detector.getCueCosts());
+
+		// Flush the annotated output still queued on the encoder thread
+		if (outputSink != null) {
+			outputSink.close();
+			System.out.println("Annotated frames dropped: " + outputSink.getDroppedFrames() + ", snapshots dropped: "
+					+ outputSink.getDroppedSnapshots() + ", failed writes: " + outputSink.getFailedWrites());
+		}
+
+		// Write the latency trace once the encoder thread has finished recording into it
+		if (traceFile != null) {
+			tracer.write(traceFile);
+			System.out.println("Latency trace written to " + traceFile + " (" + tracer.getDroppedSpans()
+					+ " spans dropped)");
+		}
+
+		System.out.println("Stale frames skipped: " + frameGrabber.getDroppedStaleFrames() + ", reconnects: "
+				+ frameGrabber.getReconnects());
+
+		// Release the camera and close the window
+		detector.release();
+		frameSource.release();
+		HighGui.destroyAllWindows();
+	}
+
+	/**
+	 * Runs face detection, tracking and liveness checks on one frame. The frame
+	 * itself is not modified; what to draw is added to {@code annotations}, and
+	 * the names of snapshot-worthy events (arrivals, session verdicts) to
+	 * {@code snapshotEvents}.
+	 */
+	public void processFrame(Mat frame, FrameStamp stamp, List<FaceAnnotation> annotations,
+			List<String> snapshotEvents) {
+		// Perform face detection on the frame
+		long stageStart = System.nanoTime();
+		MatOfRect faces = new MatOfRect();
+		detectFaces(frame, faceCascade, faces);
+		tracer.span("detectFaces", stamp, stageStart, System.nanoTime());
+
+		// Match the detected faces to the faces seen in earlier frames
+		stageStart = System.nanoTime();
+		Rect[] facesArray = faces.toArray();
+		Instant now = Instant.now();
+		List<FaceTrack> tracks = faceTracker.update(facesArray, now);
+		tracer.span("trackFaces", stamp, stageStart, System.nanoTime());
+
+		for (int i = 0; i < facesArray.length; i++) {
+			Rect faceRect = facesArray[i];
+			FaceTrack track = tracks.get(i);
+			if (track.getFirstSeen().equals(now)) {
+				snapshotEvents.add("face-" + track.getId() + "-arrived");
+			}
 
-				// Draw rectangles around the face and eyes
-				Imgproc.rectangle(frame, faceRect.tl(), faceRect.br(), new Scalar(0, 0, 255), 2);
-				for (Rect eyeRect : eyes.toArray()) {
-					Rect absoluteEyeRect = new Rect(faceRect.x + eyeRect.x, faceRect.y + eyeRect.y, eyeRect.width,
-							eyeRect.height);
-					Imgproc.rectangle(frame, absoluteEyeRect.tl(), absoluteEyeRect.br(), new Scalar(0, 255, 0), 2);
+			// Faces with a cached verdict need no further work until they leave
+			if (session != null && track.getVerdict().isFinal()) {
+				annotations.add(new FaceAnnotation(faceRect, "face " + track.getId() + ": " + track.getVerdict()));
+				continue;
+			}
+
+			// Extract the region of interest (ROI) containing the face
+			Mat faceROI = frame.submat(faceRect);
+
+			// Detect eyes in the face ROI
+			stageStart = System.nanoTime();
+			MatOfRect eyes = new MatOfRect();
+			detectEyes(faceROI, eyeCascade, eyes);
+			tracer.span("detectEyes", stamp, stageStart, System.nanoTime());
+
+			// Check if eyes are detected and determine if the person is live based on eye
+			// blinking
+			if (eyes.toArray().length >= 1) {
+				Instant currentBlinkTime = Instant.now();
+				Duration timeDifference = Duration.between(track.getLastBlinkTime(), currentBlinkTime);
+				if (timeDifference.toMillis() <= BLINK_TIME_THRESHOLD_MS) {
+					track.setBlinkLive(true);
+					track.setLastBlinkTime(currentBlinkTime);
 				}
 			} else {
-				// No face detected, consider it a spoof
-				isLive = false;
+				track.setBlinkLive(false);
 			}
 
-			// Display the frame with detected faces and eyes in the window
-			HighGui.imshow("Live Face Detection", frame);
+			// Update the passive liveness cues; until their windows are full, blinking alone
+			// decides
+			stageStart = System.nanoTime();
+			LivenessCuePipeline cues = track.getCues();
+			cues.update(faceROI, faceRect);
+			double score = cues.fusedScore();
+			tracer.span("livenessCues", stamp, stageStart, System.nanoTime());
+			boolean isLive = track.isBlinkLive() && (!cues.isReady() || score >= LIVENESS_SCORE_THRESHOLD);
 
 			// Check liveness status and display notification
-			if (isLive) {
-				System.out.println("Liveness: Real");
+			String status;
+			if (session == null) {
+				status = isLive ? "Real" : "Spoof";
+				if (reportStatus) {
+					System.out.println(String.format("Liveness: %s (face %d, cue score %.2f)", status,
+							track.getId(), score));
+				}
 			} else {
-				System.out.println("Liveness: Spoof");
+				status = session.evaluate(track, score, now).toString();
+				if (track.getVerdict().isFinal()) {
+					if (reportStatus) {
+						System.out.println(String.format("Liveness: %s (face %d, cue score %.2f, %d frames)",
+								status, track.getId(), score, track.getEvaluatedFrames()));
+					}
+					snapshotEvents.add("face-" + track.getId() + "-" + status.toLowerCase());
+				}
 			}
+			tracer.summary("glassToVerdict", stamp, stamp.getCaptureNanos(), System.nanoTime());
 
-			// Exit the loop if the 'Esc' key is pressed
-			if (HighGui.waitKey(1) == 27)
-				break;
+			// Remember the rectangles around the face and eyes
+			FaceAnnotation annotation = new FaceAnnotation(faceRect,
+					String.format("face %d: %s %.2f", track.getId(), status, score));
+			for (Rect eyeRect : eyes.toArray()) {
+				annotation.addEye(eyeRect);
+			}
+			annotations.add(annotation);
 		}
 
-		// Release the VideoCapture and close the window
-		videoCapture.release();
-		HighGui.destroyAllWindows();
+		// No face detected, consider it a spoof
+		if (reportStatus && session == null && facesArray.length == 0) {
+			System.out.println("Liveness: Spoof");
+		}
+	}
+
+	static boolean hasOption(String[] args, String name) {
+		for (String arg : args) {
+			if (arg.equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	static String stringOption(String[] args, String name, String defaultValue) {
+		for (int i = 0; i < args.length - 1; i++) {
+			if (args[i].equals(name)) {
+				return args[i + 1];
+			}
+		}
+		return defaultValue;
+	}
+
+	static long longOption(String[] args, String name, long defaultValue) {
+		String value = stringOption(args, name, null);
+		return value == null ? defaultValue : Long.parseLong(value);
+	}
+
+	static double doubleOption(String[] args, String name, double defaultValue) {
+		String value = stringOption(args, name, null);
+		return value == null ? defaultValue : Double.parseDouble(value);
 	}
 
 	private static void detectFaces(Mat frame, CascadeClassifier faceCascade, MatOfRect faces) {
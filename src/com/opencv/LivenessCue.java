@@ -0,0 +1,44 @@
+package com.opencv;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+/**
+ * A passive liveness signal that is updated once per frame for a single face.
+ *
+ * Implementations keep only sliding-window statistics, so {@link #update} does
+ * a fixed amount of work per frame and never revisits older frames.
+ */
+public interface LivenessCue {
+	String name();
+
+	/**
+	 * @param facePatch grayscale face, already resized to
+	 *                  {@link LivenessCuePipeline#PATCH_SIZE}
+	 * @param grayFace  grayscale face at the capture resolution, for cues that
+	 *                  need detail the downscaled patch has averaged away
+	 * @param faceRect  location of the face in the full frame
+	 */
+	void update(Mat facePatch, Mat grayFace, Rect faceRect);
+
+	/** True once enough frames have been seen for {@link #score()} to be meaningful. */
+	boolean isReady();
+
+	/**
+	 * False while the cue cannot sample the face at all, e.g. because it is too
+	 * small; the pipeline then decides on the remaining cues instead of waiting
+	 * for this one to become ready.
+	 */
+	default boolean isApplicable() {
+		return true;
+	}
+
+	/** Liveness score in [0, 1]; higher means more likely to be a real face. */
+	double score();
+
+	/** Clears the window so the cue starts over. */
+	void reset();
+
+	/** Resets the cue and frees its native buffers; it must not be updated afterwards. */
+	void release();
+}
@@ -0,0 +1,101 @@
+package com.opencv;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a set of liveness cues for one tracked face and fuses their scores.
+ *
+ * The face is converted to grayscale and downscaled to a fixed patch once per
+ * frame and shared by every cue, so the per-frame cost does not depend on how
+ * large the face appears in the frame. The full-resolution grayscale face is
+ * passed along as well for cues that need fine detail.
+ */
+public class LivenessCuePipeline {
+	public static final Size PATCH_SIZE = new Size(64, 64);
+
+	private final List<LivenessCue> cues = new ArrayList<>();
+	private final List<Double> weights = new ArrayList<>();
+	private final CueCosts costs;
+	private final Mat grayFace = new Mat();
+	private final Mat facePatch = new Mat();
+
+	public LivenessCuePipeline(CueCosts costs) {
+		this.costs = costs;
+	}
+
+	/** Pipeline with the default motion, texture and head-pose cues. */
+	public static LivenessCuePipeline createDefault(CueCosts costs) {
+		LivenessCuePipeline pipeline = new LivenessCuePipeline(costs);
+		pipeline.addCue(new MotionCue(), 0.4);
+		pipeline.addCue(new TextureCue(), 0.4);
+		pipeline.addCue(new HeadPoseCue(), 0.2);
+		return pipeline;
+	}
+
+	public void addCue(LivenessCue cue, double weight) {
+		cues.add(cue);
+		weights.add(weight);
+	}
+
+	public void update(Mat faceROI, Rect faceRect) {
+		Imgproc.cvtColor(faceROI, grayFace, Imgproc.COLOR_BGR2GRAY);
+		Imgproc.resize(grayFace, facePatch, PATCH_SIZE, 0, 0, Imgproc.INTER_AREA);
+		for (LivenessCue cue : cues) {
+			long start = System.nanoTime();
+			cue.update(facePatch, grayFace, faceRect);
+			costs.record(cue.name(), System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * True once every applicable cue has filled its window and at least one cue
+	 * contributes to {@link #fusedScore()}.
+	 */
+	public boolean isReady() {
+		boolean anyReady = false;
+		for (LivenessCue cue : cues) {
+			if (!cue.isApplicable()) {
+				continue;
+			}
+			if (!cue.isReady()) {
+				return false;
+			}
+			anyReady = true;
+		}
+		return anyReady;
+	}
+
+	/** Weighted mean of the scores of the applicable cues that are ready, or 0 if none are. */
+	public double fusedScore() {
+		double weightedSum = 0;
+		double totalWeight = 0;
+		for (int i = 0; i < cues.size(); i++) {
+			LivenessCue cue = cues.get(i);
+			if (cue.isApplicable() && cue.isReady()) {
+				weightedSum += weights.get(i) * cue.score();
+				totalWeight += weights.get(i);
+			}
+		}
+		return totalWeight == 0 ? 0 : weightedSum / totalWeight;
+	}
+
+	public void reset() {
+		for (LivenessCue cue : cues) {
+			cue.reset();
+		}
+	}
+
+	public void release() {
+		for (LivenessCue cue : cues) {
+			cue.release();
+		}
+		grayFace.release();
+		facePatch.release();
+	}
+}
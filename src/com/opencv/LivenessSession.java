@@ -0,0 +1,55 @@
+package com.opencv;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Decides when to stop verifying a face. A track reaches a final verdict as
+ * soon as the evidence is confident either way, or becomes
+ * {@link LivenessVerdict#UNDECIDED} once its frame or time budget is spent.
+ * The verdict is kept on the track until the face leaves, so no further
+ * detection work is spent on it.
+ */
+public class LivenessSession {
+	private static final double REAL_SCORE = 0.7; // Fused cue score above which a blinking face is accepted
+	private static final double SPOOF_SCORE = 0.2; // Fused cue score below which a face is rejected
+
+	private final int maxFrames;
+	private final long maxDurationMs;
+
+	public LivenessSession(int maxFrames, long maxDurationMs) {
+		this.maxFrames = maxFrames;
+		this.maxDurationMs = maxDurationMs;
+	}
+
+	/**
+	 * Records one more evaluated frame for the track and returns its verdict,
+	 * which is also stored on the track.
+	 */
+	public LivenessVerdict evaluate(FaceTrack track, double score, Instant now) {
+		if (track.getVerdict().isFinal()) {
+			return track.getVerdict();
+		}
+
+		int frames = track.countEvaluatedFrame();
+		LivenessVerdict verdict = LivenessVerdict.PENDING;
+		if (track.getCues().isReady()) {
+			if (track.isBlinkLive() && score >= REAL_SCORE) {
+				verdict = LivenessVerdict.REAL;
+			} else if (score <= SPOOF_SCORE) {
+				verdict = LivenessVerdict.SPOOF;
+			}
+		}
+		if (verdict == LivenessVerdict.PENDING && (frames >= maxFrames
+				|| Duration.between(track.getFirstSeen(), now).toMillis() >= maxDurationMs)) {
+			verdict = LivenessVerdict.UNDECIDED;
+		}
+
+		track.setVerdict(verdict);
+		if (verdict.isFinal()) {
+			// The cues are never consulted again for this track
+			track.getCues().release();
+		}
+		return verdict;
+	}
+}
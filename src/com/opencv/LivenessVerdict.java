@@ -0,0 +1,19 @@
+package com.opencv;
+
+/**
+ * Outcome of a liveness session for one tracked face.
+ */
+public enum LivenessVerdict {
+	/** Still collecting evidence. */
+	PENDING,
+	/** Confidently a real face. */
+	REAL,
+	/** Confidently a spoof. */
+	SPOOF,
+	/** The frame or time budget ran out before a confident decision. */
+	UNDECIDED;
+
+	public boolean isFinal() {
+		return this != PENDING;
+	}
+}
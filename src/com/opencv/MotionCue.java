@@ -0,0 +1,59 @@
+package com.opencv;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+/**
+ * Micro-motion cue. A printed photo or a paused screen is almost perfectly
+ * still between frames, while a real face keeps making small, irregular
+ * movements (breathing, eye saccades, muscle tremor).
+ *
+ * Dense optical flow is too expensive to run per face per frame, so the cue
+ * uses the mean absolute difference between consecutive face patches as the
+ * motion energy and scores the variance of that energy over the window.
+ */
+public class MotionCue implements LivenessCue {
+	private static final int WINDOW_FRAMES = 30; // Roughly one second of frames at 30 fps
+	private static final double LIVE_MOTION_STDDEV = 1.5; // Motion energy spread at which the score saturates
+
+	private final SlidingWindowStats motionEnergy = new SlidingWindowStats(WINDOW_FRAMES);
+	private final Mat previousPatch = new Mat();
+	private final Mat difference = new Mat();
+
+	@Override
+	public String name() {
+		return "motion";
+	}
+
+	@Override
+	public void update(Mat facePatch, Mat grayFace, Rect faceRect) {
+		if (!previousPatch.empty()) {
+			Core.absdiff(facePatch, previousPatch, difference);
+			motionEnergy.add(Core.mean(difference).val[0]);
+		}
+		facePatch.copyTo(previousPatch);
+	}
+
+	@Override
+	public boolean isReady() {
+		return motionEnergy.isFull();
+	}
+
+	@Override
+	public double score() {
+		return Math.min(1, motionEnergy.standardDeviation() / LIVE_MOTION_STDDEV);
+	}
+
+	@Override
+	public void reset() {
+		motionEnergy.clear();
+		previousPatch.release();
+	}
+
+	@Override
+	public void release() {
+		reset();
+		difference.release();
+	}
+}
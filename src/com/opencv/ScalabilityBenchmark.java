@@ -0,0 +1,403 @@
+package com.opencv;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end load harness for sizing hardware. Drives the full
+ * {@link LiveFaceDetector} pipeline from synthetic (or replayed) streams and
+ * sweeps worker threads, concurrent streams, resolution and faces per frame,
+ * writing one CSV row per combination.
+ *
+ * Every stream offers a frame at the target frame rate. A frame is only
+ * accepted when the stream's previous frame has finished processing, as with a
+ * camera whose buffer holds a single frame; otherwise it counts as dropped.
+ * Latency runs from the moment a frame is offered to the end of
+ * {@link LiveFaceDetector#processFrame}, so it includes the time spent waiting
+ * for a free worker.
+ *
+ * Because each stream has at most one frame in flight, worker threads beyond
+ * the number of streams would sit idle; those combinations are skipped and
+ * listed on standard error. Parallel work inside a frame comes from OpenCV's
+ * own thread pool, which is set to {@code --opencv-threads} for every run and
+ * recorded in the CSV.
+ *
+ * Heap and native memory are sampled on every tick while the streams run. The
+ * nativeMb column is the peak native memory minus what was in use before the
+ * run's streams were created, so memory left behind by earlier rows does not
+ * count towards it.
+ *
+ * Options (comma-separated lists are swept):
+ * <ul>
+ * <li>{@code --threads 1,2,4} worker threads (default 1, 2, 4, ... up to the
+ * number of cores)</li>
+ * <li>{@code --opencv-threads N} threads OpenCV may use within one frame
+ * (default 1, so that the worker threads provide all parallelism)</li>
+ * <li>{@code --streams 1,2,4} concurrent streams (default the same series as
+ * the worker threads)</li>
+ * <li>{@code --resolutions 640x480,1280x720} frame sizes</li>
+ * <li>{@code --faces 1,4} faces per frame in synthetic streams</li>
+ * <li>{@code --fps N} frames offered per second per stream</li>
+ * <li>{@code --seconds N}, {@code --warmup N} measured and warm-up time per
+ * combination</li>
+ * <li>{@code --face-image FILE} face pasted into synthetic frames</li>
+ * <li>{@code --source FILE} replay a video in every stream instead of synthetic
+ * frames</li>
+ * <li>{@code --session} run the detector in session mode</li>
+ * <li>{@code --output FILE} write the CSV to FILE instead of standard
+ * output</li>
+ * </ul>
+ */
+public class ScalabilityBenchmark {
+	private static final String DEFAULT_FACE_IMAGE = "images/PRI_223554170.webp";
+	private static final double DEFAULT_FPS = 30; // Frames offered per second per stream
+	private static final long DEFAULT_SECONDS = 10; // Measured time per combination
+	private static final long DEFAULT_WARMUP_SECONDS = 2; // Unmeasured time per combination (JIT, cue windows)
+	private static final int DEFAULT_OPENCV_THREADS = 1; // OpenCV threads per frame; workers parallelize streams
+	private static final String CSV_HEADER = "threads,opencvThreads,streams,width,height,faces,offered,processed,"
+			+ "dropRate,throughputFps,p50Ms,p99Ms,heapPeakMb,nativeMb,cpuPerStreamPct,cueCostsUs";
+
+	private final double fps;
+	private final int opencvThreads;
+	private final long warmupNanos;
+	private final long measuredNanos;
+	private final Mat faceImage;
+	private final String sourceFile;
+	private final boolean sessionMode;
+
+	public ScalabilityBenchmark(double fps, int opencvThreads, long warmupSeconds, long measuredSeconds,
+			Mat faceImage, String sourceFile, boolean sessionMode) {
+		this.fps = fps;
+		this.opencvThreads = opencvThreads;
+		this.warmupNanos = TimeUnit.SECONDS.toNanos(warmupSeconds);
+		this.measuredNanos = TimeUnit.SECONDS.toNanos(measuredSeconds);
+		this.faceImage = faceImage;
+		this.sourceFile = sourceFile;
+		this.sessionMode = sessionMode;
+	}
+
+	public static void main(String[] args) throws InterruptedException, IOException {
+		System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		List<Integer> threadCounts = intList(LiveFaceDetector.stringOption(args, "--threads", null));
+		if (threadCounts.isEmpty()) {
+			threadCounts = coreSeries(cores);
+		}
+		List<Integer> streamCounts = intList(LiveFaceDetector.stringOption(args, "--streams", null));
+		if (streamCounts.isEmpty()) {
+			// As many streams as workers, so that every thread count in the sweep has work
+			streamCounts = coreSeries(cores);
+		}
+		List<Integer> faceCounts = intList(LiveFaceDetector.stringOption(args, "--faces", "1,4"));
+		List<Size> resolutions = new ArrayList<>();
+		for (String resolution : LiveFaceDetector.stringOption(args, "--resolutions", "640x480,1280x720")
+				.split(",")) {
+			String[] dimensions = resolution.trim().split("x");
+			resolutions.add(new Size(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1])));
+		}
+
+		String sourceFile = LiveFaceDetector.stringOption(args, "--source", null);
+		Mat faceImage = null;
+		if (sourceFile == null) {
+			String faceImageFile = LiveFaceDetector.stringOption(args, "--face-image", DEFAULT_FACE_IMAGE);
+			faceImage = Imgcodecs.imread(faceImageFile);
+			if (faceImage.empty()) {
+				System.err.println("Failed to read " + faceImageFile + "; synthetic frames will have no faces.");
+				faceImage = null;
+			}
+		}
+
+		ScalabilityBenchmark benchmark = new ScalabilityBenchmark(
+				LiveFaceDetector.doubleOption(args, "--fps", DEFAULT_FPS),
+				(int) LiveFaceDetector.longOption(args, "--opencv-threads", DEFAULT_OPENCV_THREADS),
+				LiveFaceDetector.longOption(args, "--warmup", DEFAULT_WARMUP_SECONDS),
+				LiveFaceDetector.longOption(args, "--seconds", DEFAULT_SECONDS), faceImage, sourceFile,
+				LiveFaceDetector.hasOption(args, "--session"));
+
+		String outputFile = LiveFaceDetector.stringOption(args, "--output", null);
+		PrintWriter csv = outputFile != null ? new PrintWriter(new FileWriter(outputFile))
+				: new PrintWriter(System.out);
+		csv.println(CSV_HEADER);
+		csv.flush();
+		Set<Integer> skippedThreadCounts = new TreeSet<>();
+		for (Size resolution : resolutions) {
+			for (int faces : sourceFile != null ? Collections.singletonList(0) : faceCounts) {
+				for (int streams : streamCounts) {
+					for (int threads : threadCounts) {
+						if (threads > streams) {
+							// Each stream has at most one frame in flight, so extra workers would idle
+							skippedThreadCounts.add(threads);
+							continue;
+						}
+						csv.println(benchmark.run(threads, streams, resolution, faces));
+						csv.flush();
+					}
+				}
+			}
+		}
+		if (outputFile != null) {
+			csv.close();
+		}
+		if (!skippedThreadCounts.isEmpty()) {
+			System.err.println("Skipped combinations with more threads than streams for thread counts "
+					+ skippedThreadCounts + "; add --streams of at least " + Collections.max(skippedThreadCounts)
+					+ " to measure them");
+		}
+	}
+
+	/** Runs one combination and returns its CSV row. */
+	public String run(int threads, int streams, Size resolution, int faces) throws InterruptedException {
+		Core.setNumThreads(opencvThreads);
+		// Native memory is reported as growth over what earlier runs left behind
+		long nativeBaseline = nativeBytes();
+		List<Stream> streamList = new ArrayList<>();
+		for (int i = 0; i < streams; i++) {
+			streamList.add(new Stream(openSource(resolution, faces), resolution));
+		}
+
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+		AtomicLong peakHeap = new AtomicLong();
+		AtomicLong peakNative = new AtomicLong(Long.MIN_VALUE);
+		long start = System.nanoTime();
+		long measureStart = start + warmupNanos;
+		long[] cpuAtMeasureStart = new long[1];
+
+		ticker.scheduleAtFixedRate(() -> {
+			long now = System.nanoTime();
+			if (cpuAtMeasureStart[0] == 0 && now >= measureStart) {
+				cpuAtMeasureStart[0] = processCpuNanos();
+			}
+			Runtime runtime = Runtime.getRuntime();
+			peakHeap.accumulateAndGet(runtime.totalMemory() - runtime.freeMemory(), Math::max);
+			peakNative.accumulateAndGet(nativeBytes(), Math::max);
+			for (Stream stream : streamList) {
+				stream.offer(workers, now, now >= measureStart);
+			}
+		}, 0, (long) (1_000_000_000L / fps), TimeUnit.NANOSECONDS);
+
+		TimeUnit.NANOSECONDS.sleep(warmupNanos + measuredNanos);
+		ticker.shutdown();
+		ticker.awaitTermination(1, TimeUnit.MINUTES);
+		long cpuAtEnd = processCpuNanos();
+		long cpuNanos = cpuAtEnd < 0 ? -1 : cpuAtEnd - cpuAtMeasureStart[0];
+		workers.shutdown();
+		workers.awaitTermination(1, TimeUnit.MINUTES);
+		long nativePeak = Math.max(peakNative.get(), nativeBytes());
+		double nativeMb = nativeBaseline == Long.MIN_VALUE || nativePeak == Long.MIN_VALUE ? -1
+				: (nativePeak - nativeBaseline) / 1048576.0;
+
+		// Merge the per-stream results
+		long offered = 0;
+		long processed = 0;
+		List<Long> latencies = new ArrayList<>();
+		CueCosts cueCosts = new CueCosts();
+		for (Stream stream : streamList) {
+			offered += stream.offered;
+			processed += stream.latencies.size();
+			latencies.addAll(stream.latencies);
+			cueCosts.addAll(stream.detector.getCueCosts());
+			stream.release();
+		}
+		Collections.sort(latencies);
+
+		double seconds = measuredNanos / 1e9;
+		StringBuilder cueColumn = new StringBuilder();
+		for (Map.Entry<String, Double> cue : cueCosts.averageMicros().entrySet()) {
+			cueColumn.append(cueColumn.length() == 0 ? "" : ";")
+					.append(String.format(Locale.ROOT, "%s=%.1f", cue.getKey(), cue.getValue()));
+		}
+		return String.format(Locale.ROOT, "%d,%d,%d,%.0f,%.0f,%d,%d,%d,%.4f,%.1f,%.2f,%.2f,%.1f,%.1f,%.1f,%s",
+				threads, opencvThreads, streams, resolution.width, resolution.height, faces, offered, processed,
+				offered == 0 ? 0 : (double) (offered - processed) / offered, processed / seconds,
+				percentileMs(latencies, 0.50), percentileMs(latencies, 0.99), peakHeap.get() / 1048576.0,
+				nativeMb, cpuNanos < 0 ? -1 : 100.0 * cpuNanos / measuredNanos / streams, cueColumn);
+	}
+
+	private FrameSource openSource(Size resolution, int faces) {
+		FrameSource source = sourceFile != null ? new VideoCaptureFrameSource(sourceFile)
+				: new SyntheticFrameSource((int) resolution.width, (int) resolution.height, faces, faceImage, fps, 0);
+		if (!source.open()) {
+			throw new IllegalStateException("Failed to open frame source " + (sourceFile != null ? sourceFile
+					: "synthetic " + resolution.width + "x" + resolution.height));
+		}
+		return source;
+	}
+
+	private static double percentileMs(List<Long> sortedNanos, double percentile) {
+		if (sortedNanos.isEmpty()) {
+			return 0;
+		}
+		int index = (int) Math.ceil(percentile * sortedNanos.size()) - 1;
+		return sortedNanos.get(Math.max(0, index)) / 1e6;
+	}
+
+	/** Process CPU time in nanoseconds, or -1 if the JVM does not expose it. */
+	private static long processCpuNanos() {
+		OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (os instanceof com.sun.management.OperatingSystemMXBean) {
+			return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+		}
+		return -1;
+	}
+
+	/**
+	 * Resident memory outside the Java heap (OpenCV buffers, thread stacks, JIT
+	 * code), estimated as resident set size minus the heap committed by the JVM.
+	 * Heap pages stay resident after the objects in them are collected, so the
+	 * committed size is subtracted rather than the heap in use. Until the heap
+	 * has been touched this underestimates, and may even be negative for very
+	 * short runs. Returns {@link Long#MIN_VALUE} where /proc is not available.
+	 */
+	private static long nativeBytes() {
+		try (BufferedReader status = new BufferedReader(new FileReader("/proc/self/status"))) {
+			String line;
+			while ((line = status.readLine()) != null) {
+				if (line.startsWith("VmRSS:")) {
+					long residentKb = Long.parseLong(line.replaceAll("[^0-9]", ""));
+					return residentKb * 1024 - Runtime.getRuntime().totalMemory();
+				}
+			}
+		} catch (IOException e) {
+			// Not on Linux
+		}
+		return Long.MIN_VALUE;
+	}
+
+	/** 1, 2, 4, ... up to and including {@code cores}. */
+	private static List<Integer> coreSeries(int cores) {
+		List<Integer> series = new ArrayList<>();
+		for (int count = 1; count < cores; count *= 2) {
+			series.add(count);
+		}
+		series.add(cores);
+		return series;
+	}
+
+	private static List<Integer> intList(String values) {
+		List<Integer> list = new ArrayList<>();
+		if (values != null) {
+			for (String value : values.split(",")) {
+				list.add(Integer.parseInt(value.trim()));
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * One simulated camera with its own detector. At most one of its frames is in
+	 * flight at a time, so the detector and frame buffers are only ever used by
+	 * one worker thread at once.
+	 */
+	private class Stream {
+		final FrameSource source;
+		FrameGrabber grabber;
+		final Size resolution;
+		final LiveFaceDetector detector;
+		final AtomicBoolean busy = new AtomicBoolean();
+		final List<Long> latencies = Collections.synchronizedList(new ArrayList<Long>());
+		final Mat frame = new Mat();
+		final Mat resized = new Mat();
+		final List<FaceAnnotation> annotations = new ArrayList<>();
+		final List<String> snapshotEvents = new ArrayList<>();
+		long offered;
+		long sequence;
+		boolean measuring;
+
+		Stream(FrameSource source, Size resolution) {
+			this.source = source;
+			this.grabber = new FrameGrabber(source, 0, LatencyTracer.DISABLED);
+			this.resolution = resolution;
+			LivenessSession session = sessionMode
+					? new LivenessSession(LiveFaceDetector.SESSION_MAX_FRAMES, LiveFaceDetector.SESSION_MAX_MS)
+					: null;
+			this.detector = new LiveFaceDetector(session, LatencyTracer.DISABLED);
+			this.detector.setReportStatus(false);
+		}
+
+		/** Called from the ticker thread once per frame interval. */
+		void offer(ExecutorService workers, long offeredNanos, boolean measured) {
+			if (measured) {
+				offered++;
+			}
+			if (!busy.compareAndSet(false, true)) {
+				return;
+			}
+			FrameStamp stamp = new FrameStamp(sequence++, offeredNanos);
+			workers.execute(() -> {
+				try {
+					process(stamp, measured);
+				} finally {
+					busy.set(false);
+				}
+			});
+		}
+
+		private void process(FrameStamp stamp, boolean measured) {
+			try {
+				if (grabber.next(frame) == null) {
+					// A replayed video has ended: start it over
+					if (!source.open()) {
+						return;
+					}
+					grabber = new FrameGrabber(source, 0, LatencyTracer.DISABLED);
+					if (grabber.next(frame) == null) {
+						return;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			Mat input = frame;
+			if (frame.width() != resolution.width || frame.height() != resolution.height) {
+				Imgproc.resize(frame, resized, resolution);
+				input = resized;
+			}
+
+			if (measured && !measuring) {
+				// Frames are processed one at a time, so no warm-up frame can still be recording costs
+				detector.getCueCosts().reset();
+				measuring = true;
+			}
+			annotations.clear();
+			snapshotEvents.clear();
+			detector.processFrame(input, stamp, annotations, snapshotEvents);
+			if (measured) {
+				latencies.add(stamp.ageNanos(System.nanoTime()));
+			}
+		}
+
+		void release() {
+			detector.release();
+			source.release();
+			frame.release();
+			resized.release();
+		}
+	}
+}
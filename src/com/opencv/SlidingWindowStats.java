@@ -0,0 +1,70 @@
+package com.opencv;
+
+/**
+ * Running mean and variance over the last {@code capacity} samples.
+ *
+ * Samples are kept in a ring buffer together with their running sum and sum of
+ * squares, so adding a sample and reading the statistics are both O(1) no
+ * matter how long the window is.
+ */
+public class SlidingWindowStats {
+	private final double[] samples;
+	private int next;
+	private int count;
+	private double sum;
+	private double sumOfSquares;
+
+	public SlidingWindowStats(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		this.samples = new double[capacity];
+	}
+
+	public void add(double sample) {
+		if (count == samples.length) {
+			// Evict the oldest sample before overwriting its slot
+			double evicted = samples[next];
+			sum -= evicted;
+			sumOfSquares -= evicted * evicted;
+		} else {
+			count++;
+		}
+		samples[next] = sample;
+		sum += sample;
+		sumOfSquares += sample * sample;
+		next = (next + 1) % samples.length;
+	}
+
+	public int count() {
+		return count;
+	}
+
+	public boolean isFull() {
+		return count == samples.length;
+	}
+
+	public double mean() {
+		return count == 0 ? 0 : sum / count;
+	}
+
+	public double variance() {
+		if (count < 2) {
+			return 0;
+		}
+		double mean = mean();
+		// Clamp rounding noise from the running sums, which can dip just below zero
+		return Math.max(0, sumOfSquares / count - mean * mean);
+	}
+
+	public double standardDeviation() {
+		return Math.sqrt(variance());
+	}
+
+	public void clear() {
+		next = 0;
+		count = 0;
+		sum = 0;
+		sumOfSquares = 0;
+	}
+}
@@ -0,0 +1,175 @@
+package com.opencv;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates frames without a camera, for exercising and load-testing the
+ * pipeline. Each frame shows {@code faces} copies of a face image laid out on a
+ * grid, each drifting by a few pixels from frame to frame so that trackers and
+ * motion cues see a plausible face. Without a face image the cells are plain
+ * grey.
+ *
+ * By default frames are produced as fast as they are grabbed, like a recorded
+ * file. {@link #setLive(int)} makes the source behave like a camera instead, and
+ * {@link #failGrabs(long)} simulates a camera that stops delivering frames.
+ */
+public class SyntheticFrameSource implements FrameSource {
+	private static final Scalar BACKGROUND = new Scalar(96, 96, 96);
+	private static final int JITTER_PIXELS = 3; // Maximum per-frame drift of each face
+
+	private final int width;
+	private final int height;
+	private final int faces;
+	private final Mat faceImage;
+	private final double fps;
+	private final long frameLimit;
+	private final Mat canvas = new Mat();
+	private final Mat cellFace = new Mat();
+	private Rect[] cells;
+	private long grabbed;
+	private boolean opened;
+	private int driverBuffer;
+	private long openNanos;
+	private long nextLiveFrame;
+	private long failingGrabs;
+
+	/**
+	 * @param faceImage  BGR image pasted into every cell, or null for empty cells
+	 * @param fps        nominal frame rate reported to consumers
+	 * @param frameLimit frames produced before {@link #grab()} fails, or 0 for no
+	 *                   limit
+	 */
+	public SyntheticFrameSource(int width, int height, int faces, Mat faceImage, double fps, long frameLimit) {
+		this.width = width;
+		this.height = height;
+		this.faces = faces;
+		this.faceImage = faceImage;
+		this.fps = fps;
+		this.frameLimit = frameLimit;
+	}
+
+	/**
+	 * Makes the source live: frames arrive in real time at the nominal frame
+	 * rate from the moment it is opened, and the newest {@code driverBuffer} of
+	 * them stay queued until grabbed. {@link #grab()} returns the oldest queued
+	 * frame at once, or blocks until the next one arrives if none is queued.
+	 */
+	public void setLive(int driverBuffer) {
+		this.driverBuffer = driverBuffer;
+	}
+
+	/** Makes the next {@code count} grabs fail, even across re-opening the source. */
+	public void failGrabs(long count) {
+		failingGrabs = count;
+	}
+
+	@Override
+	public boolean open() {
+		// Lay the faces out on the smallest square grid that holds them, leaving room for the jitter
+		int columns = (int) Math.ceil(Math.sqrt(Math.max(faces, 1)));
+		int rows = (int) Math.ceil((double) Math.max(faces, 1) / columns);
+		int cellSize = Math.min(width / columns, height / rows) - 2 * JITTER_PIXELS;
+		cells = new Rect[faces];
+		for (int i = 0; i < faces; i++) {
+			cells[i] = new Rect((i % columns) * (width / columns) + JITTER_PIXELS,
+					(i / columns) * (height / rows) + JITTER_PIXELS, cellSize, cellSize);
+		}
+		if (faceImage != null && cellSize > 0) {
+			Imgproc.resize(faceImage, cellFace, new Size(cellSize, cellSize));
+		}
+		canvas.release();
+		grabbed = 0;
+		openNanos = System.nanoTime();
+		nextLiveFrame = 0;
+		opened = cellSize > 0;
+		return opened;
+	}
+
+	@Override
+	public boolean isOpened() {
+		return opened;
+	}
+
+	@Override
+	public boolean isLive() {
+		return driverBuffer > 0;
+	}
+
+	@Override
+	public double getFps() {
+		return fps;
+	}
+
+	@Override
+	public boolean grab() {
+		if (!opened || (frameLimit > 0 && grabbed >= frameLimit)) {
+			return false;
+		}
+		if (failingGrabs > 0) {
+			failingGrabs--;
+			return false;
+		}
+		if (isLive() && !awaitLiveFrame()) {
+			return false;
+		}
+		grabbed++;
+		return true;
+	}
+
+	/** Takes the oldest frame still in the simulated driver queue, waiting for one if it is empty. */
+	private boolean awaitLiveFrame() {
+		long frameIntervalNanos = (long) (1_000_000_000L / fps);
+		long now = System.nanoTime();
+		long arrived = (now - openNanos) / frameIntervalNanos + 1;
+		// Frames that no longer fit the driver queue have been overwritten
+		nextLiveFrame = Math.max(nextLiveFrame, arrived - driverBuffer);
+		if (nextLiveFrame >= arrived) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(openNanos + nextLiveFrame * frameIntervalNanos - now);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		nextLiveFrame++;
+		return true;
+	}
+
+	@Override
+	public boolean retrieve(Mat frame) {
+		if (!opened || grabbed == 0) {
+			return false;
+		}
+		if (canvas.empty()) {
+			canvas.create(height, width, CvType.CV_8UC3);
+		}
+		canvas.setTo(BACKGROUND);
+		for (int i = 0; i < cells.length; i++) {
+			if (cellFace.empty()) {
+				continue;
+			}
+			// Drift each face on its own small, deterministic orbit around its cell
+			double phase = grabbed * 0.3 + i;
+			int dx = (int) Math.round(JITTER_PIXELS * Math.sin(phase));
+			int dy = (int) Math.round(JITTER_PIXELS * Math.cos(phase * 0.7));
+			Rect cell = cells[i];
+			cellFace.copyTo(canvas.submat(new Rect(cell.x + dx, cell.y + dy, cell.width, cell.height)));
+		}
+		canvas.copyTo(frame);
+		return true;
+	}
+
+	@Override
+	public void release() {
+		opened = false;
+		canvas.release();
+		cellFace.release();
+	}
+}
@@ -0,0 +1,142 @@
+package com.opencv;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Texture cue for print and screen attacks. Re-captured faces lose most of the
+ * fine skin texture (prints) or replace it with regular moire (screens), so the
+ * share of their energy at the highest spatial frequencies is lower (prints) or
+ * higher (screens) than that of a real face. The score is therefore 1 inside a
+ * live band of ratios and falls off towards 0 on either side of it.
+ *
+ * The cue looks at a fixed-size crop from the centre of the face at capture
+ * resolution, since downscaling the face would average exactly this detail
+ * away. The crop size bounds the per-frame cost regardless of face size. The
+ * measure is the variance of the Laplacian divided by the intensity variance of
+ * the crop, which cancels out lighting and contrast. Faces smaller than the crop
+ * are too far away to show print grain, and flat crops carry no texture, so
+ * neither is sampled. A cue that has gone a whole window without a sample
+ * reports itself as not applicable, and the pipeline decides on the other cues.
+ *
+ * The default thresholds are uncalibrated placeholders: they have not been
+ * measured on any genuine or attack footage. Record {@link #meanRatio()} on
+ * genuine, print and screen footage from the target camera and pass the
+ * calibrated values to {@link #TextureCue(double, double, double, double)}.
+ */
+public class TextureCue implements LivenessCue {
+	private static final int WINDOW_FRAMES = 15; // Frames averaged to smooth out motion blur
+	private static final int CROP_SIZE = 96; // Side of the central face crop analysed, in capture pixels
+	private static final double DEFAULT_PRINT_RATIO = 0.3; // High-frequency ratio at or below which the score is 0
+	private static final double DEFAULT_LIVE_LOW_RATIO = 1.0; // Lowest ratio scored as fully live
+	private static final double DEFAULT_LIVE_HIGH_RATIO = 3.0; // Highest ratio scored as fully live
+	private static final double DEFAULT_SCREEN_RATIO = 6.0; // Ratio at or above which moire scores 0
+	private static final double MIN_CONTRAST_VARIANCE = 1; // Crops flatter than this carry no texture information
+
+	private final double printRatio;
+	private final double liveLowRatio;
+	private final double liveHighRatio;
+	private final double screenRatio;
+	private final SlidingWindowStats highFrequencyRatio = new SlidingWindowStats(WINDOW_FRAMES);
+	private final Mat laplacian = new Mat();
+	private final MatOfDouble mean = new MatOfDouble();
+	private final MatOfDouble stddev = new MatOfDouble();
+	private int framesWithoutSample;
+
+	public TextureCue() {
+		this(DEFAULT_PRINT_RATIO, DEFAULT_LIVE_LOW_RATIO, DEFAULT_LIVE_HIGH_RATIO, DEFAULT_SCREEN_RATIO);
+	}
+
+	/**
+	 * @param printRatio    ratio at or below which the face is scored as a print
+	 * @param liveLowRatio  start of the band of ratios scored as live
+	 * @param liveHighRatio end of the band of ratios scored as live
+	 * @param screenRatio   ratio at or above which the face is scored as a screen
+	 */
+	public TextureCue(double printRatio, double liveLowRatio, double liveHighRatio, double screenRatio) {
+		if (!(printRatio < liveLowRatio && liveLowRatio <= liveHighRatio && liveHighRatio < screenRatio)) {
+			throw new IllegalArgumentException("Ratios must satisfy print < liveLow <= liveHigh < screen: "
+					+ printRatio + ", " + liveLowRatio + ", " + liveHighRatio + ", " + screenRatio);
+		}
+		this.printRatio = printRatio;
+		this.liveLowRatio = liveLowRatio;
+		this.liveHighRatio = liveHighRatio;
+		this.screenRatio = screenRatio;
+	}
+
+	@Override
+	public String name() {
+		return "texture";
+	}
+
+	@Override
+	public void update(Mat facePatch, Mat grayFace, Rect faceRect) {
+		if (grayFace.cols() < CROP_SIZE || grayFace.rows() < CROP_SIZE) {
+			framesWithoutSample++;
+			return;
+		}
+		Mat crop = grayFace.submat(new Rect((grayFace.cols() - CROP_SIZE) / 2, (grayFace.rows() - CROP_SIZE) / 2,
+				CROP_SIZE, CROP_SIZE));
+
+		Core.meanStdDev(crop, mean, stddev);
+		double contrast = stddev.toArray()[0];
+		double contrastVariance = contrast * contrast;
+		if (contrastVariance >= MIN_CONTRAST_VARIANCE) {
+			Imgproc.Laplacian(crop, laplacian, CvType.CV_64F);
+			Core.meanStdDev(laplacian, mean, stddev);
+			double deviation = stddev.toArray()[0];
+			highFrequencyRatio.add(deviation * deviation / contrastVariance);
+			framesWithoutSample = 0;
+		} else {
+			framesWithoutSample++;
+		}
+		crop.release();
+	}
+
+	@Override
+	public boolean isReady() {
+		return highFrequencyRatio.isFull();
+	}
+
+	@Override
+	public boolean isApplicable() {
+		return framesWithoutSample < WINDOW_FRAMES;
+	}
+
+	/** Mean high-frequency ratio over the window, for calibrating the thresholds. */
+	public double meanRatio() {
+		return highFrequencyRatio.mean();
+	}
+
+	@Override
+	public double score() {
+		double ratio = highFrequencyRatio.mean();
+		double normalized;
+		if (ratio < liveLowRatio) {
+			normalized = (ratio - printRatio) / (liveLowRatio - printRatio);
+		} else if (ratio > liveHighRatio) {
+			normalized = (screenRatio - ratio) / (screenRatio - liveHighRatio);
+		} else {
+			normalized = 1;
+		}
+		return Math.max(0, Math.min(1, normalized));
+	}
+
+	@Override
+	public void reset() {
+		highFrequencyRatio.clear();
+		framesWithoutSample = 0;
+	}
+
+	@Override
+	public void release() {
+		reset();
+		laplacian.release();
+		mean.release();
+		stddev.release();
+	}
+}
@@ -0,0 +1,117 @@
+package com.opencv;
+
+import org.opencv.core.Mat;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.VideoWriter;
+import org.opencv.videoio.Videoio;
+
+/**
+ * Frames from a camera or a video file through {@link VideoCapture}.
+ *
+ * For cameras the requested {@link CaptureSettings} are applied on every open
+ * and the values the driver actually negotiated are read back and logged.
+ * MJPEG at a small buffer size usually gives the highest frame rate with the
+ * least queued (stale) frames on USB cameras.
+ */
+public class VideoCaptureFrameSource implements FrameSource {
+	private final int cameraIndex;
+	private final String fileName;
+	private final CaptureSettings settings;
+	private VideoCapture videoCapture;
+	private double fps;
+	private int bufferSize;
+
+	/** A camera, 0 being the default one. */
+	public VideoCaptureFrameSource(int cameraIndex, CaptureSettings settings) {
+		this.cameraIndex = cameraIndex;
+		this.fileName = null;
+		this.settings = settings;
+	}
+
+	/** A recorded video, read at its own pace. */
+	public VideoCaptureFrameSource(String fileName) {
+		this.cameraIndex = -1;
+		this.fileName = fileName;
+		this.settings = null;
+	}
+
+	@Override
+	public boolean open() {
+		release();
+		videoCapture = fileName != null ? new VideoCapture(fileName) : new VideoCapture(cameraIndex);
+		if (!videoCapture.isOpened()) {
+			return false;
+		}
+		if (settings != null) {
+			negotiate();
+		}
+		fps = videoCapture.get(Videoio.CAP_PROP_FPS);
+		bufferSize = (int) videoCapture.get(Videoio.CAP_PROP_BUFFERSIZE);
+		return true;
+	}
+
+	@Override
+	public boolean isOpened() {
+		return videoCapture != null && videoCapture.isOpened();
+	}
+
+	@Override
+	public boolean isLive() {
+		return fileName == null;
+	}
+
+	@Override
+	public double getFps() {
+		return fps;
+	}
+
+	/** Frames the driver reported it will queue, or 0 if it does not say. */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	@Override
+	public boolean grab() {
+		return videoCapture.grab();
+	}
+
+	@Override
+	public boolean retrieve(Mat frame) {
+		return videoCapture.retrieve(frame);
+	}
+
+	@Override
+	public void release() {
+		if (videoCapture != null) {
+			videoCapture.release();
+			videoCapture = null;
+		}
+	}
+
+	private void negotiate() {
+		// FOURCC goes first: some drivers only offer the higher resolutions and frame rates in MJPEG
+		if (settings.getFourcc() != null) {
+			String code = settings.getFourcc();
+			videoCapture.set(Videoio.CAP_PROP_FOURCC,
+					VideoWriter.fourcc(code.charAt(0), code.charAt(1), code.charAt(2), code.charAt(3)));
+		}
+		videoCapture.set(Videoio.CAP_PROP_FRAME_WIDTH, settings.getWidth());
+		videoCapture.set(Videoio.CAP_PROP_FRAME_HEIGHT, settings.getHeight());
+		videoCapture.set(Videoio.CAP_PROP_FPS, settings.getFps());
+		videoCapture.set(Videoio.CAP_PROP_BUFFERSIZE, settings.getBufferSize());
+
+		System.out.println(String.format("Camera %d negotiated %.0fx%.0f @ %.1f fps, FOURCC %s, buffer %.0f",
+				cameraIndex, videoCapture.get(Videoio.CAP_PROP_FRAME_WIDTH),
+				videoCapture.get(Videoio.CAP_PROP_FRAME_HEIGHT), videoCapture.get(Videoio.CAP_PROP_FPS),
+				fourccToString((int) videoCapture.get(Videoio.CAP_PROP_FOURCC)),
+				videoCapture.get(Videoio.CAP_PROP_BUFFERSIZE)));
+	}
+
+	private static String fourccToString(int fourcc) {
+		char[] code = new char[4];
+		for (int i = 0; i < 4; i++) {
+			code[i] = (char) ((fourcc >> (8 * i)) & 0xFF);
+		}
+		return new String(code);
+	}
+}
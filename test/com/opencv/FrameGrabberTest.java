@@ -0,0 +1,119 @@
+package com.opencv;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+
+/**
+ * Checks {@link FrameGrabber} against {@link SyntheticFrameSource} in its
+ * recorded, live and failing modes. Run with the OpenCV jar on the class path
+ * and its native library on {@code java.library.path}; exits with status 1 if
+ * any check fails.
+ */
+public class FrameGrabberTest {
+	private static final double FPS = 30;
+	private static final long FRAME_INTERVAL_MS = (long) (1000 / FPS);
+
+	private static int failures;
+
+	public static void main(String[] args) throws InterruptedException {
+		System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+
+		drainsQueuedFrames();
+		stopsDrainingWhenGrabBlocks();
+		reconnectsAfterConsecutiveFailures();
+		recordedSourceFinishes();
+
+		if (failures > 0) {
+			System.out.println(failures + " check(s) failed");
+			System.exit(1);
+		}
+		System.out.println("All checks passed");
+	}
+
+	private static void drainsQueuedFrames() throws InterruptedException {
+		SyntheticFrameSource source = liveSource(4);
+		FrameGrabber grabber = new FrameGrabber(source, 4, LatencyTracer.DISABLED);
+		Mat frame = new Mat();
+		check("first live frame is read", grabber.next(frame) != null);
+
+		// Six frames arrive while "processing"; the driver keeps the newest four
+		Thread.sleep(6 * FRAME_INTERVAL_MS + FRAME_INTERVAL_MS / 2);
+		check("frame after a stall is read", grabber.next(frame) != null);
+		check("three of four queued frames are skipped, got " + grabber.getDroppedStaleFrames(),
+				grabber.getDroppedStaleFrames() == 3);
+
+		source.release();
+		frame.release();
+	}
+
+	private static void stopsDrainingWhenGrabBlocks() throws InterruptedException {
+		// The driver keeps only the newest frame, but the grabber assumes its default buffer
+		SyntheticFrameSource source = liveSource(1);
+		FrameGrabber grabber = new FrameGrabber(source, 0, LatencyTracer.DISABLED);
+		Mat frame = new Mat();
+		grabber.next(frame);
+
+		Thread.sleep(6 * FRAME_INTERVAL_MS + FRAME_INTERVAL_MS / 2);
+		long start = System.nanoTime();
+		check("frame from a newest-only driver is read", grabber.next(frame) != null);
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+		check("draining stops at the first blocking grab, dropped " + grabber.getDroppedStaleFrames(),
+				grabber.getDroppedStaleFrames() <= 1);
+		check("at most one frame interval is spent waiting, took " + elapsedMs + " ms",
+				elapsedMs < 2 * FRAME_INTERVAL_MS);
+
+		source.release();
+		frame.release();
+	}
+
+	private static void reconnectsAfterConsecutiveFailures() throws InterruptedException {
+		SyntheticFrameSource source = liveSource(4);
+		source.failGrabs(10);
+		FrameGrabber grabber = new FrameGrabber(source, 4, LatencyTracer.DISABLED);
+		Mat frame = new Mat();
+
+		for (int i = 0; i < 9; i++) {
+			check("failed grab " + (i + 1) + " returns no frame", grabber.next(frame) == null);
+		}
+		check("no reconnect before ten failures", grabber.getReconnects() == 0);
+		check("tenth failed grab returns no frame", grabber.next(frame) == null);
+		check("reconnected once after ten failures, got " + grabber.getReconnects(), grabber.getReconnects() == 1);
+		check("frames are read again after reconnecting", grabber.next(frame) != null);
+		check("a live source never finishes", !grabber.isFinished());
+
+		source.release();
+		frame.release();
+	}
+
+	private static void recordedSourceFinishes() throws InterruptedException {
+		SyntheticFrameSource source = new SyntheticFrameSource(320, 240, 1, null, FPS, 3);
+		source.open();
+		FrameGrabber grabber = new FrameGrabber(source, 0, LatencyTracer.DISABLED);
+		Mat frame = new Mat();
+
+		for (int i = 0; i < 3; i++) {
+			FrameStamp stamp = grabber.next(frame);
+			check("recorded frame " + i + " is read in order", stamp != null && stamp.getSequence() == i);
+		}
+		check("read past the end returns no frame", grabber.next(frame) == null);
+		check("recorded source is finished at its end", grabber.isFinished());
+		check("recorded source is never reconnected", grabber.getReconnects() == 0);
+
+		source.release();
+		frame.release();
+	}
+
+	private static SyntheticFrameSource liveSource(int driverBuffer) {
+		SyntheticFrameSource source = new SyntheticFrameSource(320, 240, 1, null, FPS, 0);
+		source.setLive(driverBuffer);
+		source.open();
+		return source;
+	}
+
+	private static void check(String description, boolean passed) {
+		if (!passed) {
+			failures++;
+			System.out.println("FAILED: " + description);
+		}
+	}
+}